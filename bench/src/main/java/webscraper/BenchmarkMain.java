@@ -0,0 +1,25 @@
+package webscraper;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: runs the suite with the GC profiler attached,
+ * so every result reports allocation rate next to throughput.
+ * Accepts the usual JMH flags, e.g. a benchmark regex or -p page=page-1mb.html.
+ * "generate [dir]" only writes the corpus.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("generate")) {
+            CorpusGenerator.main(args.length > 1 ? new String[] { args[1] } : new String[0]);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package webscraper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Random;
+
+/**
+ * Writes the synthetic benchmark corpus: deterministic pages from 10 KB to 10 MB
+ * with the markup our hot paths care about (links, images, srcset, inline
+ * style url(), inline and external CSS/JS, meta tags).
+ * Saved real-world pages can be dropped into the same folder and passed as
+ * the "page" parameter.
+ */
+public class CorpusGenerator {
+    static final String BASE_URL = "https://example.com/";
+    static final String[] PAGES = { "page-10kb.html", "page-100kb.html", "page-1mb.html", "page-10mb.html" };
+    private static final int[] SIZES = { 10 * 1024, 100 * 1024, 1024 * 1024, 10 * 1024 * 1024 };
+    static final String STYLE_HEAVY_PAGE = "page-styles-1mb.html";
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "corpus");
+        generateAll(dir);
+        System.out.println("Corpus written to " + dir.getAbsolutePath());
+    }
+
+    static void generateAll(File dir) throws IOException {
+        Files.createDirectories(dir.toPath());
+        for (int i = 0; i < PAGES.length; i++) {
+            File file = new File(dir, PAGES[i]);
+            if (!file.exists()) {
+                Files.write(file.toPath(), generate(SIZES[i], i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        File styles = new File(dir, STYLE_HEAVY_PAGE);
+        if (!styles.exists()) {
+            Files.write(styles.toPath(), generateStyleHeavy(1024 * 1024).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Thousands of small elements, each with inline style url() references
+     * (quoted, unquoted, data: URIs and repeated values), like builder-made pages.
+     */
+    static String generateStyleHeavy(int targetBytes) {
+        StringBuilder html = new StringBuilder(targetBytes + 4096);
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n  <meta charset=\"utf-8\">\n");
+        html.append("  <title>Style-heavy page</title>\n</head>\n<body>\n");
+        int n = 0;
+        while (html.length() < targetBytes) {
+            html.append("  <div class=\"tile\" style=\"background-image: url('/images/tile").append(n % 200)
+                    .append(".png'), url(/images/overlay").append(n % 7).append(".svg); padding: 4px\">")
+                    .append("<span style=\"mask: url(&quot;/images/mask").append(n).append(".svg&quot;)\">")
+                    .append(n).append("</span>")
+                    .append("<i style=\"background:url(data:image/gif;base64,R0lGODlhAQABAAAAACw=)\"></i>")
+                    .append("<b style=\"color: red\">x</b></div>\n");
+            n++;
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    static String generate(int targetBytes, long seed) {
+        Random random = new Random(seed);
+        StringBuilder html = new StringBuilder(targetBytes + 4096);
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n");
+        html.append("  <meta charset=\"utf-8\">\n  <title>Benchmark page ").append(targetBytes).append("</title>\n");
+        html.append("  <meta name=\"description\" content=\"Synthetic page for scraper benchmarks\">\n");
+        html.append("  <meta name=\"keywords\" content=\"bench, jsoup, scraper\">\n");
+        for (int i = 0; i < 6; i++) {
+            html.append("  <link rel=\"stylesheet\" href=\"/css/style").append(i).append(".css\">\n");
+            html.append("  <script src=\"/js/app").append(i).append(".js\"></script>\n");
+        }
+        html.append("  <link rel=\"icon\" href=\"/favicon.ico\">\n");
+        html.append("  <style>\n    body { margin: 0; font-family: sans-serif; }\n    .card { padding: 8px; }\n  </style>\n");
+        html.append("</head>\n<body>\n");
+
+        int block = 0;
+        while (html.length() < targetBytes) {
+            int n = block++;
+            html.append("  <section class=\"card\" id=\"s").append(n).append("\">\n");
+            html.append("    <div class=\"inner\">\n");
+            html.append("      <h2>Section ").append(n).append("</h2>\n");
+            html.append("      <p>");
+            for (int w = 0; w < 40; w++) {
+                html.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            html.append("</p>\n");
+            html.append("      <a href=\"/articles/").append(n).append("/index.html\">Read more</a>\n");
+            html.append("      <a href=\"https://cdn").append(n % 3).append(".example.net/doc/").append(n)
+                    .append("\">External</a>\n");
+            html.append("      <img src=\"/images/photo").append(n % 50).append(".jpg\" alt=\"photo\">\n");
+            html.append("      <picture><source srcset=\"/images/hero").append(n % 20).append("-480.webp 480w, /images/hero")
+                    .append(n % 20).append("-960.webp 960w, /images/hero").append(n % 20)
+                    .append("-1920.webp 1920w\"></picture>\n");
+            html.append("      <div style=\"background-image: url('/images/bg").append(n % 30)
+                    .append(".png'); color: #333\">styled</div>\n");
+            html.append("    </div>\n");
+            if (n % 10 == 0) {
+                html.append("    <script>window.track && track('s").append(n).append("');</script>\n");
+            }
+            html.append("  </section>\n");
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+            "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna",
+            "aliqua", "<b>bold</b>", "<em>em</em>", "&amp;", "caf&eacute;" };
+}
@@ -0,0 +1,34 @@
+package webscraper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One corpus page loaded from disk (-Dbench.corpus=dir, default ./corpus).
+ * Missing synthetic pages are generated first, so runs never need the network.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+    @Param({ "page-10kb.html", "page-100kb.html", "page-1mb.html", "page-10mb.html" })
+    public String page;
+
+    public String html;
+    public Document doc;
+    public String parsedHtml;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        File dir = new File(System.getProperty("bench.corpus", "corpus"));
+        File file = new File(dir, page);
+        if (!file.exists()) {
+            CorpusGenerator.generateAll(dir);
+        }
+        html = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        doc = Jsoup.parse(html, CorpusGenerator.BASE_URL);
+        parsedHtml = doc.html();
+    }
+}
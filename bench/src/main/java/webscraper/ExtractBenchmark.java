@@ -0,0 +1,85 @@
+package webscraper;
+
+import java.util.concurrent.TimeUnit;
+import org.jsoup.nodes.*;
+import org.jsoup.select.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Field extraction in WebScraper.scrapeWebsite: the single NodeTraversor pass
+ * against the previous one-select-per-field approach.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExtractBenchmark {
+
+    @Benchmark
+    public WebScraper.ScrapedData singlePass(CorpusState state) {
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+        WebScraper.extractPageData(state.doc, data);
+        return data;
+    }
+
+    @Benchmark
+    public WebScraper.ScrapedData multiSelect(CorpusState state) {
+        Document doc = state.doc;
+        WebScraper.ScrapedData data = new WebScraper.ScrapedData();
+
+        Element titleElement = doc.selectFirst("title");
+        if (titleElement != null) {
+            data.title = titleElement.text();
+        }
+        Element descElement = doc.selectFirst("meta[name=description]");
+        if (descElement != null) {
+            data.description = descElement.attr("content");
+        }
+        Element keywordElement = doc.selectFirst("meta[name=keywords]");
+        if (keywordElement != null) {
+            data.keywords = keywordElement.attr("content");
+        }
+        for (Element link : doc.select("a[href]")) {
+            String href = link.attr("abs:href");
+            if (!href.isEmpty()) {
+                data.links.add(href);
+            }
+        }
+        for (Element img : doc.select("img[src]")) {
+            String src = img.attr("abs:src");
+            if (!src.isEmpty()) {
+                data.images.add(src);
+                data.assets.add(src);
+            }
+        }
+        StringBuilder inlineCss = new StringBuilder();
+        for (Element s : doc.select("style")) {
+            inlineCss.append(s.html()).append("\n\n");
+        }
+        data.inlineCss = inlineCss.toString();
+        StringBuilder inlineJs = new StringBuilder();
+        for (Element s : doc.select("script:not([src])")) {
+            inlineJs.append(s.html()).append("\n\n");
+        }
+        data.inlineJs = inlineJs.toString();
+        for (Element css : doc.select("link[rel=stylesheet]")) {
+            String href = css.attr("abs:href");
+            if (!href.isEmpty()) {
+                data.externalCss.add(href);
+                data.assets.add(href);
+            }
+        }
+        for (Element script : doc.select("script[src]")) {
+            String src = script.attr("abs:src");
+            if (!src.isEmpty()) {
+                data.externalJs.add(src);
+                data.assets.add(src);
+            }
+        }
+        // buildComprehensiveSource selected these two again
+        doc.select("style");
+        doc.select("script:not([src])");
+        return data;
+    }
+}
@@ -0,0 +1,43 @@
+package webscraper;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Display/text formatting of the parsed HTML (Source tab, full_source_code.txt).
+ * replaceChain is the former String.replace/replaceAll formatter, kept as the
+ * baseline for the streaming HtmlFormatter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FormatBenchmark {
+
+    @Benchmark
+    public String serialize(CorpusState state) {
+        return state.doc.html();
+    }
+
+    @Benchmark
+    public String replaceChain(CorpusState state) {
+        return state.parsedHtml
+                .replace("><", ">\n<")
+                .replace("/>", "/>\n")
+                .replace("</", "\n</")
+                .replaceAll("(\\s{2,})", " ")
+                .replaceAll("\\n\\s*\\n", "\n")
+                .trim();
+    }
+
+    @Benchmark
+    public String formatString(CorpusState state) {
+        return HtmlFormatter.format(state.parsedHtml);
+    }
+
+    @Benchmark
+    public String formatDocument(CorpusState state) {
+        return HtmlFormatter.format(state.doc, state.parsedHtml.length());
+    }
+}
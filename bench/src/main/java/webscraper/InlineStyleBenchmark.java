@@ -0,0 +1,95 @@
+package webscraper;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.*;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Inline style url() discovery plus rewriting on a style-heavy page:
+ * the old code (Pattern.compile per element, every style scanned twice)
+ * vs. the single scan of collectInlineStyleUrls and rewriteInlineStyles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class InlineStyleBenchmark {
+
+    @State(Scope.Thread)
+    public static class StylePage {
+        @Param({ CorpusGenerator.STYLE_HEAVY_PAGE })
+        public String page;
+
+        Document doc;
+        Document working;
+        WebsiteDownloader.DownloadSession session = new WebsiteDownloader.DownloadSession(null, null);
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            File dir = new File(System.getProperty("bench.corpus", "corpus"));
+            File file = new File(dir, page);
+            if (!file.exists()) {
+                CorpusGenerator.generateAll(dir);
+            }
+            doc = Jsoup.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8),
+                    CorpusGenerator.BASE_URL);
+            WebsiteDownloader.collectInlineStyleUrls(doc, CorpusGenerator.BASE_URL,
+                    url -> session.urlToLocalPath.put(url, "images/" + url.substring(url.lastIndexOf('/') + 1)));
+        }
+
+        @Setup(Level.Invocation)
+        public void freshCopy() {
+            working = doc.clone(); // Both variants rewrite the document
+        }
+    }
+
+    @Benchmark
+    public Document regexTwoPass(StylePage state) throws MalformedURLException {
+        List<String> discovered = new ArrayList<>();
+        for (Element element : state.working.select("[style*=\"url(\"]")) {
+            String style = element.attr("style");
+            Pattern urlPattern = Pattern.compile("url\\(['\"]?([^'\")]*)['\"]?\\)", Pattern.CASE_INSENSITIVE);
+            Matcher matcher = urlPattern.matcher(style);
+            while (matcher.find()) {
+                String url = matcher.group(1);
+                if (!url.startsWith("data:") && !url.startsWith("#") && !url.isEmpty()) {
+                    discovered.add(new URL(new URL(CorpusGenerator.BASE_URL), url).toString());
+                }
+            }
+        }
+        for (Element element : state.working.select("[style*=\"url(\"]")) {
+            String style = element.attr("style");
+            Pattern urlPattern = Pattern.compile("url\\(['\"]?([^'\")]*)['\"]?\\)", Pattern.CASE_INSENSITIVE);
+            Matcher matcher = urlPattern.matcher(style);
+            StringBuilder newStyle = new StringBuilder();
+            while (matcher.find()) {
+                String url = matcher.group(1);
+                if (state.session.urlToLocalPath.containsKey(url)) {
+                    matcher.appendReplacement(newStyle, "url('" + state.session.urlToLocalPath.get(url) + "')");
+                } else {
+                    matcher.appendReplacement(newStyle, matcher.group(0));
+                }
+            }
+            matcher.appendTail(newStyle);
+            element.attr("style", newStyle.toString());
+        }
+        return state.working;
+    }
+
+    @Benchmark
+    public Document onePass(StylePage state) {
+        List<String> discovered = new ArrayList<>();
+        WebsiteDownloader.InlineStyleRefs refs = WebsiteDownloader.collectInlineStyleUrls(state.working,
+                CorpusGenerator.BASE_URL, discovered::add);
+        WebsiteDownloader.rewriteInlineStyles(state.session, state.working, refs);
+        return state.working;
+    }
+}
@@ -0,0 +1,22 @@
+package webscraper;
+
+import java.util.concurrent.TimeUnit;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Jsoup parse of the raw page, the first step of every scrape and mirror.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParseBenchmark {
+
+    @Benchmark
+    public Document parse(CorpusState state) {
+        return Jsoup.parse(state.html, CorpusGenerator.BASE_URL);
+    }
+}
@@ -0,0 +1,68 @@
+package webscraper;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.jsoup.nodes.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * WebsiteDownloader.processHtmlForLocal and convertSrcsetToLocal with every
+ * asset of the page mapped to a local path, as after a complete download.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RewriteBenchmark {
+
+    @State(Scope.Thread)
+    public static class RewriteState {
+        List<String> srcsets = new ArrayList<>();
+        WebsiteDownloader.DownloadSession session = new WebsiteDownloader.DownloadSession(null, null);
+        Document working;
+
+        @Setup(Level.Trial)
+        public void mapAssets(CorpusState corpus) {
+            WebsiteDownloader.collectInlineStyleUrls(corpus.doc, CorpusGenerator.BASE_URL,
+                    url -> map(url, "images"));
+            for (Element el : corpus.doc.select("[src], link[href], source[srcset]")) {
+                map(el.attr("abs:src"), "images");
+                map(el.attr("abs:href"), "css");
+                String srcset = el.attr("srcset");
+                if (!srcset.isEmpty()) {
+                    srcsets.add(srcset);
+                    for (String part : srcset.split("\\s*,\\s*")) {
+                        map(part.trim().split("\\s+")[0], "images");
+                    }
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void freshCopy(CorpusState corpus) {
+            working = corpus.doc.clone(); // processHtmlForLocal mutates the document
+        }
+
+        private void map(String url, String folder) {
+            if (!url.isEmpty()) {
+                String name = url.substring(url.lastIndexOf('/') + 1);
+                session.urlToLocalPath.put(url, folder + "/" + name);
+            }
+        }
+    }
+
+    @Benchmark
+    public String processHtmlForLocal(RewriteState state) {
+        return WebsiteDownloader.processHtmlForLocal(state.session, state.working, CorpusGenerator.BASE_URL,
+                Collections.emptyMap(), null);
+    }
+
+    @Benchmark
+    public void convertSrcsetToLocal(RewriteState state, Blackhole blackhole) {
+        for (String srcset : state.srcsets) {
+            blackhole.consume(WebsiteDownloader.convertSrcsetToLocal(state.session, srcset));
+        }
+    }
+}